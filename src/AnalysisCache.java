@@ -0,0 +1,403 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the AI's search results in a file so they survive the JVM shutting down. Without this every restart
+ * re-searched the same common positions from scratch.
+ * <p>
+ * The file is a small header followed by fixed-size records, and records are only ever appended. The whole thing is
+ * memory-mapped, so writing a result is just a few puts into the mapping, and the OS writes it back to disk.
+ * An open-addressing table of record numbers sits in memory on top of it. It gets built the first time the cache
+ * is actually used, not when the game starts.
+ * <p>
+ * Positions are stored canonically: the board is turned into "discs of the player to move" and "discs of the
+ * opponent", and the smallest of its 8 rotations/reflections is the key. So a position seen from either side,
+ * or mirrored, hits the same record. The best move is stored in the canonical orientation and mapped back on the
+ * way out.
+ * <p>
+ * When the file fills up it's compacted: anything too many sessions old is dropped, the rest are ranked by depth
+ * and then by how recent they are, and the best half is kept. Records carry a checksum and broken ones are skipped
+ * when loading. If the header is bad, the file is started again. The header also records the engine version the
+ * results came from, and a file from a different version is started again too, so a changed search never gets
+ * served an old one's moves. If the file can't be opened at all, the cache just turns itself off and the AI
+ * searches as normal.
+ */
+public class AnalysisCache {
+
+    /**
+     * Bound types for the stored score, same meaning as in any alpha/beta table.
+     */
+    public static final byte EXACT = 0;
+    public static final byte LOWER_BOUND = 1;
+    public static final byte UPPER_BOUND = 2;
+
+    /**
+     * File layout constants. The header is: magic, version, generation, record count, engine version.
+     * A record is: own discs, opponent discs, score, depth, bound, move square, generation written, checksum.
+     */
+    private static final int MAGIC = 0x4F544843; // "OTHC"
+    private static final int VERSION = 3; // 2: checksum seeded so zero-filled records fail it, 3: engine version
+    static final int HEADER_SIZE = 32; // package-private so BoardCheck can damage records on purpose
+    static final int RECORD_SIZE = 32;
+    static final int MAX_RECORDS = 1 << 16;
+    private static final int INDEX_SIZE = MAX_RECORDS * 2; // keep the table at most half full
+    private static final int MAX_AGE = 64; // sessions an entry survives compaction for
+
+    private static final int OFF_MAGIC = 0;
+    private static final int OFF_VERSION = 4;
+    private static final int OFF_GENERATION = 8;
+    private static final int OFF_COUNT = 12;
+    private static final int OFF_ENGINE = 16;
+
+    private final Path path;
+    private final int engineVersion;
+    private boolean loaded = false;
+    private boolean disabled = false;
+    private MappedByteBuffer buffer;
+    private int generation;
+    private int count;
+    private int[] index; // record number + 1, 0 means empty
+
+    /**
+     * A cached result, with the move already mapped back to the caller's board.
+     */
+    public static class Entry {
+        public final int depth;
+        public final int score;
+        public final byte bound;
+        public final int row;
+        public final int col;
+
+        private Entry(int depth, int score, byte bound, int row, int col) {
+            this.depth = depth;
+            this.score = score;
+            this.bound = bound;
+            this.row = row;
+            this.col = col;
+        }
+    }
+
+    /**
+     * Nothing is opened here; that happens on the first get or put.
+     *
+     * @param path          cache file, created if it doesn't exist
+     * @param engineVersion version of the search storing results, a file written by any other version is emptied
+     */
+    public AnalysisCache(Path path, int engineVersion) {
+        this.path = path;
+        this.engineVersion = engineVersion;
+    }
+
+    /**
+     * Looks up a position.
+     *
+     * @param board logical board, has to be 8x8
+     * @param turn  whose move it is
+     * @return the stored result, or null if it isn't cached
+     */
+    public synchronized Entry get(char[][] board, char turn) {
+        checkSize(board);
+        if (!ensureLoaded()) {
+            return null;
+        }
+
+        long[] key = canonical(board, turn);
+        int record = find(key[0], key[1]);
+        if (record < 0) {
+            return null;
+        }
+
+        int base = HEADER_SIZE + record * RECORD_SIZE;
+        int square = Long.numberOfTrailingZeros(inverse((int) key[2], 1L << (buffer.get(base + 20) & 0x3F)));
+
+        return new Entry(buffer.get(base + 18), buffer.getShort(base + 16), buffer.get(base + 19),
+                square / BoardEncoding.STANDARD_SIZE, square % BoardEncoding.STANDARD_SIZE);
+    }
+
+    /**
+     * Stores a result. If the position is already cached at a greater depth, the old one is kept.
+     *
+     * @param board logical board, has to be 8x8
+     * @param turn  whose move it is
+     * @param depth how deep the search went
+     * @param score score of the best move
+     * @param bound EXACT, LOWER_BOUND or UPPER_BOUND
+     * @param row   best move row
+     * @param col   best move column
+     */
+    public synchronized void put(char[][] board, char turn, int depth, int score, byte bound, int row, int col) {
+        checkSize(board);
+        if (!ensureLoaded()) {
+            return;
+        }
+
+        long[] key = canonical(board, turn);
+        int existing = find(key[0], key[1]);
+        if (existing >= 0 && buffer.get(HEADER_SIZE + existing * RECORD_SIZE + 18) > depth) {
+            return;
+        }
+
+        if (count == MAX_RECORDS) {
+            compact();
+        }
+
+        long move = transform((int) key[2], 1L << (row * BoardEncoding.STANDARD_SIZE + col));
+        int record = count;
+        writeRecord(record, key[0], key[1], (short) score, (byte) depth, bound,
+                (byte) Long.numberOfTrailingZeros(move), generation);
+        count++;
+        buffer.putInt(OFF_COUNT, count); // record first, then count, so a crash mid-write loses only that record
+
+        insert(key[0], key[1], record);
+    }
+
+    /**
+     * Keys are single-long bitboards, so anything but a standard board would be stored under the wrong key.
+     */
+    private static void checkSize(char[][] board) {
+        if (board.length != BoardEncoding.STANDARD_SIZE || board[0].length != BoardEncoding.STANDARD_SIZE) {
+            throw new IllegalArgumentException("Analysis cache only holds " + BoardEncoding.STANDARD_SIZE + "x"
+                    + BoardEncoding.STANDARD_SIZE + " boards, got " + board.length + "x" + board[0].length);
+        }
+    }
+
+    /**
+     * Maps the file and builds the index, only once. Returns false if the cache couldn't be used.
+     */
+    private boolean ensureLoaded() {
+        if (loaded) {
+            return !disabled;
+        }
+        loaded = true;
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) MAX_RECORDS * RECORD_SIZE);
+        } catch (IOException | UnsupportedOperationException e) {
+            System.out.println("Analysis cache disabled, couldn't open " + path + ": " + e.getMessage());
+            disabled = true;
+            return false;
+        }
+
+        if (buffer.getInt(OFF_MAGIC) != MAGIC || buffer.getInt(OFF_VERSION) != VERSION
+                || buffer.getInt(OFF_ENGINE) != engineVersion) { // new, unreadable or from another search
+            buffer.putInt(OFF_MAGIC, MAGIC);
+            buffer.putInt(OFF_VERSION, VERSION);
+            buffer.putInt(OFF_GENERATION, 0);
+            buffer.putInt(OFF_COUNT, 0);
+            buffer.putInt(OFF_ENGINE, engineVersion);
+        }
+
+        generation = buffer.getInt(OFF_GENERATION) + 1; // one generation per session
+        buffer.putInt(OFF_GENERATION, generation);
+        count = Math.max(0, Math.min(buffer.getInt(OFF_COUNT), MAX_RECORDS));
+
+        buildIndex();
+        return true;
+    }
+
+    /**
+     * Rebuilds the index from the records. Later records win, so a deeper re-search replaces the older result.
+     */
+    private void buildIndex() {
+        index = new int[INDEX_SIZE];
+
+        for (int record = 0; record < count; record++) {
+            int base = HEADER_SIZE + record * RECORD_SIZE;
+            if (buffer.getInt(base + 28) != checksum(base)) { // corrupt, skip it
+                continue;
+            }
+            insert(buffer.getLong(base), buffer.getLong(base + 8), record);
+        }
+    }
+
+    /**
+     * Drops old entries, keeps the deepest and newest half of the rest, and rewrites them from the start of the file.
+     */
+    private void compact() {
+        List<long[]> live = new ArrayList<>();
+
+        for (int slot : index) {
+            if (slot == 0) {
+                continue;
+            }
+            int base = HEADER_SIZE + (slot - 1) * RECORD_SIZE;
+            int age = generation - buffer.getInt(base + 24);
+            if (age <= MAX_AGE) { // the raw record as 4 longs, then depth and age to sort on
+                live.add(new long[]{buffer.getLong(base), buffer.getLong(base + 8), buffer.getLong(base + 16),
+                        buffer.getLong(base + 24), buffer.get(base + 18), age});
+            }
+        }
+
+        live.sort((a, b) -> {
+            if (a[4] != b[4]) {
+                return Long.compare(b[4], a[4]); // deeper first
+            }
+            return Long.compare(a[5], b[5]); // then newer first
+        });
+
+        int kept = Math.min(live.size(), MAX_RECORDS / 2);
+        for (int record = 0; record < kept; record++) {
+            int base = HEADER_SIZE + record * RECORD_SIZE;
+            long[] entry = live.get(record);
+            buffer.putLong(base, entry[0]);
+            buffer.putLong(base + 8, entry[1]);
+            buffer.putLong(base + 16, entry[2]);
+            buffer.putLong(base + 24, entry[3]);
+        }
+
+        count = kept;
+        buffer.putInt(OFF_COUNT, count);
+        buffer.force();
+        buildIndex();
+    }
+
+    private void writeRecord(int record, long own, long opp, short score, byte depth, byte bound, byte move, int age) {
+        int base = HEADER_SIZE + record * RECORD_SIZE;
+
+        buffer.putLong(base, own);
+        buffer.putLong(base + 8, opp);
+        buffer.putShort(base + 16, score);
+        buffer.put(base + 18, depth);
+        buffer.put(base + 19, bound);
+        buffer.put(base + 20, move);
+        buffer.put(base + 21, (byte) 0);
+        buffer.putShort(base + 22, (short) 0);
+        buffer.putInt(base + 24, age);
+        buffer.putInt(base + 28, checksum(base));
+    }
+
+    /**
+     * Checksum over the first 28 bytes of a record. Seeded with the magic number, since mix(0) is 0 and a record of
+     * all zeros (a truncated file gets zero-extended when it's mapped) would otherwise pass.
+     */
+    private int checksum(int base) {
+        long h = mix(buffer.getLong(base) ^ mix(buffer.getLong(base + 8) ^ mix(buffer.getLong(base + 16)
+                ^ mix(buffer.getInt(base + 24) ^ ((long) MAGIC << 32)))));
+
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * Linear probing. Returns the record number, or -1 if not found.
+     */
+    private int find(long own, long opp) {
+        int mask = INDEX_SIZE - 1;
+
+        for (int slot = (int) mix(own ^ mix(opp)) & mask; index[slot] != 0; slot = (slot + 1) & mask) {
+            int base = HEADER_SIZE + (index[slot] - 1) * RECORD_SIZE;
+            if (buffer.getLong(base) == own && buffer.getLong(base + 8) == opp) {
+                return index[slot] - 1;
+            }
+        }
+
+        return -1;
+    }
+
+    private void insert(long own, long opp, int record) {
+        int mask = INDEX_SIZE - 1;
+        int slot = (int) mix(own ^ mix(opp)) & mask;
+
+        while (index[slot] != 0) {
+            int base = HEADER_SIZE + (index[slot] - 1) * RECORD_SIZE;
+            if (buffer.getLong(base) == own && buffer.getLong(base + 8) == opp) {
+                break; // replace the older record for this position
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        index[slot] = record + 1;
+    }
+
+    private static long mix(long x) {
+        x ^= x >>> 33;
+        x *= 0xFF51AFD7ED558CCDL;
+        x ^= x >>> 33;
+        x *= 0xC4CEB9FE1A85EC53L;
+
+        return x ^ (x >>> 33);
+    }
+
+    /**
+     * Works out the canonical key of a position.
+     *
+     * @return {own discs, opponent discs, symmetry used}
+     */
+    static long[] canonical(char[][] board, char turn) {
+        char opponent = turn == BoardEncoding.WHITE ? BoardEncoding.BLACK : BoardEncoding.WHITE;
+        long own = BatchEvaluator.pack(board, turn);
+        long opp = BatchEvaluator.pack(board, opponent);
+        long[] best = {own, opp, 0};
+
+        for (int sym = 1; sym < 8; sym++) {
+            long o = transform(sym, own);
+            long p = transform(sym, opp);
+            int cmp = Long.compareUnsigned(o, best[0]);
+            if (cmp < 0 || cmp == 0 && Long.compareUnsigned(p, best[1]) < 0) {
+                best[0] = o;
+                best[1] = p;
+                best[2] = sym;
+            }
+        }
+
+        return best;
+    }
+
+    /**
+     * Applies one of the 8 board symmetries. Bit 2 transposes, bit 1 mirrors left/right, bit 0 flips top/bottom.
+     */
+    static long transform(int sym, long bits) {
+        if ((sym & 4) != 0) {
+            bits = transpose(bits);
+        }
+        if ((sym & 2) != 0) {
+            bits = mirror(bits);
+        }
+        if ((sym & 1) != 0) {
+            bits = Long.reverseBytes(bits);
+        }
+        return bits;
+    }
+
+    /**
+     * Undoes transform. Each step is its own inverse, so it's just the same steps backwards.
+     */
+    static long inverse(int sym, long bits) {
+        if ((sym & 1) != 0) {
+            bits = Long.reverseBytes(bits);
+        }
+        if ((sym & 2) != 0) {
+            bits = mirror(bits);
+        }
+        if ((sym & 4) != 0) {
+            bits = transpose(bits);
+        }
+        return bits;
+    }
+
+    /**
+     * Reverses the bits in each row, so column j goes to column 7 - j.
+     */
+    private static long mirror(long bits) {
+        bits = ((bits >>> 1) & 0x5555555555555555L) | ((bits & 0x5555555555555555L) << 1);
+        bits = ((bits >>> 2) & 0x3333333333333333L) | ((bits & 0x3333333333333333L) << 2);
+        return ((bits >>> 4) & 0x0F0F0F0F0F0F0F0FL) | ((bits & 0x0F0F0F0F0F0F0F0FL) << 4);
+    }
+
+    /**
+     * Swaps rows and columns.
+     */
+    private static long transpose(long bits) {
+        long t = 0x0F0F0F0F00000000L & (bits ^ (bits << 28));
+        bits ^= t ^ (t >>> 28);
+        t = 0x3333000033330000L & (bits ^ (bits << 14));
+        bits ^= t ^ (t >>> 14);
+        t = 0x5500550055005500L & (bits ^ (bits << 7));
+        return bits ^ t ^ (t >>> 7);
+    }
+}
@@ -0,0 +1,201 @@
+/**
+ * Scores lots of positions in one go, for the offline analysis and training jobs that used to score millions of
+ * char boards one at a time with a 64-char loop (what GFG.evaluate was before the engine moved onto bitsets).
+ * <p>
+ * Positions are kept struct-of-arrays style: one long[] of black discs and one long[] of white discs, a bit per
+ * square (bit = row * 8 + col). Disc counts then become a popcount per board and mobility is worked out with shifts
+ * over the whole board rather than looping over 64 chars. BoardCheck compares the results against a plain 64-char
+ * count and its own brute-force move rules; it doesn't call the engine's evaluate or move checks.
+ * <p>
+ * The bulk API is add(long, long): positions that are already packed, e.g. packed once with pack() when a job
+ * first produces them and stored that way. On 200k positions (BatchEvaluatorBenchmark, JDK 17) that's about 0.6 ms
+ * against 14 ms for the old char loop for disc counts, and about 15 ms against 475 ms with mobility as well.
+ * <p>
+ * add(char[][]) is only there for convenience. It has to read all 64 chars and pack both colours, so for a disc
+ * count on its own it's about twice as slow as the old loop (around 30 ms against 14 ms). Jobs that keep char
+ * boards and only want disc counts get no speed-up from this class; it only pays off for them once mobility is
+ * wanted too.
+ * <p>
+ * There's no jdk.incubator.vector path. With a whole board in one long, a popcount already does the work of 64
+ * lanes, so vector lanes over chars had nothing left to win. Pattern indices aren't here either, as the engine has
+ * no pattern evaluation for them to match.
+ */
+public class BatchEvaluator {
+
+    /**
+     * Board encoding, see BoardEncoding.
+     */
+    private static final char BLACK = BoardEncoding.BLACK;
+    private static final char WHITE = BoardEncoding.WHITE;
+    private static final char EMPTY = BoardEncoding.EMPTY;
+    private static final int BOARD_SIZE = BoardEncoding.STANDARD_SIZE;
+    private static final int SQUARES = BoardEncoding.STANDARD_SQUARES;
+
+    /**
+     * Masks so a shift doesn't wrap a disc round onto the other edge of the board.
+     */
+    private static final long NOT_COL_0 = 0xFEFEFEFEFEFEFEFEL;
+    private static final long NOT_COL_7 = 0x7F7F7F7F7F7F7F7FL;
+
+    /**
+     * The 8 directions as bit shifts, with the mask applied before shifting in that direction.
+     * Order is E, W, S, N, SE, SW, NE, NW.
+     */
+    private static final int[] SHIFTS = {1, -1, 8, -8, 9, 7, -7, -9};
+    private static final long[] PRE_MASKS = {NOT_COL_7, NOT_COL_0, -1L, -1L, NOT_COL_7, NOT_COL_0, NOT_COL_7, NOT_COL_0};
+
+    /**
+     * The batch itself, struct-of-arrays.
+     */
+    private final long[] blackDiscs;
+    private final long[] whiteDiscs;
+    private int size = 0;
+
+    public BatchEvaluator(int capacity) {
+        blackDiscs = new long[capacity];
+        whiteDiscs = new long[capacity];
+    }
+
+    /**
+     * Adds a position to the batch, packing both colours in one pass over the board.
+     *
+     * @param board logical board, same layout as Othello.boardState
+     * @return index of the position in the batch
+     */
+    public int add(char[][] board) {
+        long black = 0L;
+        long white = 0L;
+
+        for (int i = 0; i < BOARD_SIZE; i++) {
+            char[] row = board[i];
+            long blackRow = 0L;
+            long whiteRow = 0L;
+            for (int j = 0; j < BOARD_SIZE; j++) { // a row at a time keeps the shifts short and independent
+                blackRow |= isColour(row[j], BLACK) << j;
+                whiteRow |= isColour(row[j], WHITE) << j;
+            }
+            black |= blackRow << (i * BOARD_SIZE);
+            white |= whiteRow << (i * BOARD_SIZE);
+        }
+
+        return add(black, white);
+    }
+
+    /**
+     * Adds a position that is already packed into bitboards. This is the fast way in for bulk jobs.
+     *
+     * @return index of the position in the batch
+     */
+    public int add(long black, long white) {
+        if (size == blackDiscs.length) {
+            throw new IllegalStateException("Batch is full: " + size + " positions");
+        }
+        blackDiscs[size] = black;
+        whiteDiscs[size] = white;
+        return size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Disc counts for every position in the batch: how many squares of each board hold turn.
+     *
+     * @param turn whose discs to count (EMPTY counts empty squares)
+     * @param out  written with one score per position, must be at least size() long
+     */
+    public void evaluate(char turn, int[] out) {
+        if (turn == BLACK) {
+            for (int i = 0; i < size; i++) {
+                out[i] = Long.bitCount(blackDiscs[i]);
+            }
+        } else if (turn == WHITE) {
+            for (int i = 0; i < size; i++) {
+                out[i] = Long.bitCount(whiteDiscs[i]);
+            }
+        } else if (turn == EMPTY) {
+            for (int i = 0; i < size; i++) {
+                out[i] = SQUARES - Long.bitCount(blackDiscs[i] | whiteDiscs[i]);
+            }
+        } else {
+            for (int i = 0; i < size; i++) {
+                out[i] = 0;
+            }
+        }
+    }
+
+    /**
+     * Number of valid moves for every position in the batch: empty squares that would flip at least one disc.
+     *
+     * @param turn whose moves to count
+     * @param out  written with one count per position, must be at least size() long
+     */
+    public void mobility(char turn, int[] out) {
+        long[] own = turn == WHITE ? whiteDiscs : blackDiscs;
+        long[] opp = turn == WHITE ? blackDiscs : whiteDiscs;
+
+        for (int i = 0; i < size; i++) {
+            out[i] = Long.bitCount(validMoves(own[i], opp[i]));
+        }
+    }
+
+    /**
+     * Packs one colour of a logical board into a bitboard.
+     */
+    public static long pack(char[][] board, char colour) {
+        long bits = 0L;
+
+        for (int i = 0; i < BOARD_SIZE; i++) {
+            char[] row = board[i];
+            for (int j = 0; j < BOARD_SIZE; j++) {
+                bits |= isColour(row[j], colour) << (i * BOARD_SIZE + j);
+            }
+        }
+
+        return bits;
+    }
+
+    /**
+     * 1 if the square holds that colour, else 0, without a branch: c ^ colour is 0 only on a match, and 0 - 1 is
+     * the only way to get the sign bit set since chars are never negative.
+     */
+    private static long isColour(char c, char colour) {
+        return ((c ^ colour) - 1) >>> 31;
+    }
+
+    /**
+     * Every empty square that would flip at least one of the opponent's discs, as a bitboard.
+     * For each direction, walk the opponent's discs out from our own ones; an empty square just past a run is a move.
+     * A run is at most 6 discs long on an 8x8 board, hence the 5 extra steps.
+     *
+     * @param own discs of the player to move
+     * @param opp discs of the opponent
+     * @return bitboard of valid moves
+     */
+    public static long validMoves(long own, long opp) {
+        long empty = ~(own | opp);
+        long moves = 0L;
+
+        for (int d = 0; d < SHIFTS.length; d++) {
+            long run = shift(own, d) & opp;
+            for (int k = 0; k < 5; k++) {
+                run |= shift(run, d) & opp;
+            }
+            moves |= shift(run, d) & empty;
+        }
+
+        return moves;
+    }
+
+    private static long shift(long bits, int d) {
+        int s = SHIFTS[d];
+        bits &= PRE_MASKS[d];
+
+        return s > 0 ? bits << s : bits >>> -s;
+    }
+}
@@ -0,0 +1,115 @@
+import java.util.Random;
+
+/**
+ * Times BatchEvaluator against the old one-position-at-a-time loops, on random 8x8 positions.
+ * Each case runs a few times to let the JIT warm up, and only the last run is reported.
+ * <p>
+ * Run with: javac -d out src/*.java && java -cp out BatchEvaluatorBenchmark [positions]
+ */
+public class BatchEvaluatorBenchmark {
+
+    private static final int ROUNDS = 10;
+
+    private static char[][][] boards;
+    private static long[] black;
+    private static long[] white;
+    private static BatchEvaluator batch;
+    private static int[] scores;
+    private static long sink; // keeps the JIT from throwing the work away
+
+    public static void main(String[] args) {
+        int positions = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        Random random = new Random(1);
+
+        boards = new char[positions][][];
+        black = new long[positions];
+        white = new long[positions];
+        batch = new BatchEvaluator(positions);
+        scores = new int[positions];
+
+        for (int n = 0; n < positions; n++) {
+            boards[n] = BoardCheck.randomBoard(random, BoardEncoding.STANDARD_SIZE);
+            black[n] = BatchEvaluator.pack(boards[n], BoardEncoding.BLACK);
+            white[n] = BatchEvaluator.pack(boards[n], BoardEncoding.WHITE);
+        }
+
+        System.out.println(positions + " positions, disc count for white:");
+        time("  char loop (64-char count)", positions, BatchEvaluatorBenchmark::charDiscs);
+        time("  add(char[][]) + evaluate", positions, () -> {
+            addChars();
+            batchDiscs();
+        });
+        time("  add(long, long) + evaluate", positions, () -> {
+            addPacked();
+            batchDiscs();
+        });
+
+        System.out.println(positions + " positions, disc counts for both + mobility for white:");
+        time("  char loops (count x2 + brute-force moves x64)", positions, () -> {
+            charDiscs();
+            charMobility();
+        });
+        time("  add(char[][]) + evaluate x2 + mobility", positions, () -> {
+            addChars();
+            batchAll();
+        });
+        time("  add(long, long) + evaluate x2 + mobility", positions, () -> {
+            addPacked();
+            batchAll();
+        });
+
+        System.out.println("(sink " + sink + ")");
+    }
+
+    private static void time(String name, int positions, Runnable work) {
+        long nanos = 0;
+
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            work.run();
+            nanos = System.nanoTime() - start;
+        }
+
+        System.out.printf("%-48s %8.2f ms %12.0f positions/s%n", name, nanos / 1e6, positions / (nanos / 1e9));
+    }
+
+    private static void charDiscs() {
+        for (char[][] board : boards) {
+            sink += BoardCheck.countDiscs(board, BoardEncoding.WHITE);
+        }
+    }
+
+    private static void charMobility() {
+        for (char[][] board : boards) {
+            sink += BoardCheck.countDiscs(board, BoardEncoding.BLACK) + BoardCheck.countMoves(board, BoardEncoding.WHITE);
+        }
+    }
+
+    private static void addChars() {
+        batch.clear();
+        for (char[][] board : boards) {
+            batch.add(board);
+        }
+    }
+
+    private static void addPacked() {
+        batch.clear();
+        for (int n = 0; n < black.length; n++) {
+            batch.add(black[n], white[n]);
+        }
+    }
+
+    private static void batchDiscs() {
+        batch.evaluate(BoardEncoding.WHITE, scores);
+        sink += scores[scores.length - 1];
+    }
+
+    private static void batchAll() {
+        batch.evaluate(BoardEncoding.WHITE, scores);
+        sink += scores[scores.length - 1];
+        batch.evaluate(BoardEncoding.BLACK, scores);
+        sink += scores[scores.length - 1];
+        batch.mobility(BoardEncoding.WHITE, scores);
+        sink += scores[scores.length - 1];
+    }
+}
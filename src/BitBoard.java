@@ -0,0 +1,209 @@
+/**
+ * Move generation for any N x N board, one bit per square (bit = row * N + col), split over as many longs as needed.
+ * <p>
+ * Works the same way as BatchEvaluator.validMoves: from our own discs, walk along runs of the opponent's discs in
+ * each direction, and the empty square at the end of a run is a move. The difference is that a shift can carry bits
+ * across word boundaries. For each direction I precompute a mask of the squares that can step that way without going
+ * off the board, so there's no wrapping round the edges. An 8x8 board fits in one long and goes straight to
+ * BatchEvaluator's single-long version.
+ * <p>
+ * Nothing here allocates per call except pack and newBitSet: validMoves writes into a buffer the caller owns, so a
+ * recursive search keeps one per depth and reuses them. validMoves also uses scratch arrays held by the instance,
+ * so an instance is for one thread (one game) only.
+ */
+public class BitBoard {
+
+    /**
+     * Row and column steps for the 8 directions: E, W, S, N, SE, SW, NE, NW.
+     */
+    private static final int[] ROW_DIRS = {0, 0, 1, -1, 1, 1, -1, -1};
+    private static final int[] COL_DIRS = {1, -1, 0, 0, 1, -1, 1, -1};
+
+    private final int size;
+    private final int words;
+    private final long[] full; // every square on the board
+    private final int[] shifts = new int[8];
+    private final long[][] preMasks = new long[8][];
+
+    private final long[] run;
+    private final long[] step;
+    private final long[] empty;
+
+    /**
+     * Sets up the direction masks for a board of the given size.
+     *
+     * @param size tiles per side
+     */
+    public BitBoard(int size) {
+        this.size = size;
+        this.words = (size * size + 63) / 64;
+        this.full = new long[words];
+        this.run = new long[words];
+        this.step = new long[words];
+        this.empty = new long[words];
+
+        for (int sq = 0; sq < size * size; sq++) {
+            set(full, sq);
+        }
+
+        for (int d = 0; d < 8; d++) {
+            shifts[d] = ROW_DIRS[d] * size + COL_DIRS[d];
+            preMasks[d] = new long[words];
+
+            for (int i = 0; i < size; i++) {
+                for (int j = 0; j < size; j++) {
+                    int row = i + ROW_DIRS[d];
+                    int col = j + COL_DIRS[d];
+                    if (row >= 0 && row < size && col >= 0 && col < size) {
+                        set(preMasks[d], i * size + j);
+                    }
+                }
+            }
+        }
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * An empty bitset big enough for this board.
+     */
+    public long[] newBitSet() {
+        return new long[words];
+    }
+
+    /**
+     * Packs one colour of a logical board.
+     */
+    public long[] pack(char[][] board, char colour) {
+        long[] bits = new long[words];
+
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                if (board[i][j] == colour) {
+                    set(bits, i * size + j);
+                }
+            }
+        }
+
+        return bits;
+    }
+
+    /**
+     * Every empty square that would flip at least one of the opponent's discs.
+     *
+     * @param own   discs of the player to move
+     * @param opp   discs of the opponent
+     * @param moves overwritten with the valid moves, from newBitSet
+     */
+    public void validMoves(long[] own, long[] opp, long[] moves) {
+        if (size == BoardEncoding.STANDARD_SIZE) { // single-long fast path
+            moves[0] = BatchEvaluator.validMoves(own[0], opp[0]);
+            return;
+        }
+
+        for (int w = 0; w < words; w++) {
+            moves[w] = 0L;
+        }
+
+        for (int w = 0; w < words; w++) {
+            empty[w] = ~(own[w] | opp[w]) & full[w];
+        }
+
+        for (int d = 0; d < 8; d++) {
+            shift(own, d, run);
+            boolean any = false;
+            for (int w = 0; w < words; w++) {
+                run[w] &= opp[w];
+                any |= run[w] != 0;
+            }
+
+            while (any) { // extend the runs until they stop growing, at most size - 2 times
+                shift(run, d, step);
+                any = false;
+                for (int w = 0; w < words; w++) {
+                    long grown = step[w] & opp[w] & ~run[w];
+                    run[w] |= grown;
+                    any |= grown != 0;
+                }
+            }
+
+            shift(run, d, step);
+            for (int w = 0; w < words; w++) {
+                moves[w] |= step[w] & empty[w];
+            }
+        }
+    }
+
+    /**
+     * Number of squares set.
+     */
+    public int count(long[] bits) {
+        int count = 0;
+
+        for (int w = 0; w < words; w++) {
+            count += Long.bitCount(bits[w]);
+        }
+
+        return count;
+    }
+
+    /**
+     * Index of the first set square at or after from, or -1 if there isn't one.
+     */
+    public int nextSetBit(long[] bits, int from) {
+        int w = from >>> 6;
+        if (w >= words) {
+            return -1;
+        }
+
+        long word = bits[w] & (-1L << (from & 63));
+        while (word == 0) {
+            if (++w == words) {
+                return -1;
+            }
+            word = bits[w];
+        }
+
+        return w * 64 + Long.numberOfTrailingZeros(word);
+    }
+
+    /**
+     * Moves every square in src one step in direction d, into dst. Squares that would leave the board are dropped.
+     */
+    private void shift(long[] src, int d, long[] dst) {
+        long[] mask = preMasks[d];
+        int s = shifts[d];
+
+        if (s > 0) {
+            int ws = s >>> 6;
+            int bs = s & 63;
+            for (int w = words - 1; w >= 0; w--) {
+                long hi = w - ws >= 0 ? src[w - ws] & mask[w - ws] : 0L;
+                long lo = w - ws - 1 >= 0 ? src[w - ws - 1] & mask[w - ws - 1] : 0L;
+                dst[w] = bs == 0 ? hi : (hi << bs) | (lo >>> (64 - bs));
+            }
+        } else {
+            int ws = -s >>> 6;
+            int bs = -s & 63;
+            for (int w = 0; w < words; w++) {
+                long lo = w + ws < words ? src[w + ws] & mask[w + ws] : 0L;
+                long hi = w + ws + 1 < words ? src[w + ws + 1] & mask[w + ws + 1] : 0L;
+                dst[w] = bs == 0 ? lo : (lo >>> bs) | (hi << (64 - bs));
+            }
+        }
+    }
+
+    public static boolean get(long[] bits, int sq) {
+        return (bits[sq >>> 6] & (1L << (sq & 63))) != 0;
+    }
+
+    public static void set(long[] bits, int sq) {
+        bits[sq >>> 6] |= 1L << (sq & 63);
+    }
+
+    public static void clear(long[] bits, int sq) {
+        bits[sq >>> 6] &= ~(1L << (sq & 63));
+    }
+}
@@ -0,0 +1,477 @@
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * There's no test setup in this repo, so this is a runnable check that the bitboard code gives the same answers as
+ * the plain char-board rules. It plays random boards through both and counts any differences.
+ * It also plays random games through Othello to check its char board and bitboards stay in step, and puts
+ * AnalysisCache through symmetries, reloads, damaged files and compaction, using temp files.
+ * <p>
+ * Run with: javac -d out src/*.java && java -cp out BoardCheck
+ */
+public class BoardCheck {
+
+    private static final char BLACK = BoardEncoding.BLACK;
+    private static final char WHITE = BoardEncoding.WHITE;
+    private static final char EMPTY = BoardEncoding.EMPTY;
+
+    /**
+     * The 8 directions, as row and column steps.
+     */
+    private static final int[] ROW_DIRS = {0, 0, 1, -1, 1, 1, -1, -1};
+    private static final int[] COL_DIRS = {1, -1, 0, 0, 1, -1, 1, -1};
+
+    public static void main(String[] args) throws IOException {
+        Random random = new Random(2023);
+        int failures = checkBatch(random, 20000);
+
+        for (int size = 4; size <= 20; size += 2) {
+            failures += checkBitBoard(random, size, 2000);
+        }
+
+        failures += checkGames(random, 8, 50);
+        failures += checkGames(random, 10, 20);
+        failures += checkGames(random, 16, 5);
+
+        failures += checkCacheSymmetries(random, 200);
+        failures += checkCacheDamage(random, 500);
+        failures += checkCacheCompaction(random, 1000);
+
+        if (failures > 0) {
+            System.out.println(failures + " mismatches");
+            System.exit(1);
+        }
+        System.out.println("All checks passed");
+    }
+
+    /**
+     * BatchEvaluator disc counts against countDiscs, and mobility against the brute-force isValidMove below.
+     */
+    private static int checkBatch(Random random, int positions) {
+        BatchEvaluator batch = new BatchEvaluator(positions);
+        char[][][] boards = new char[positions][][];
+        int failures = 0;
+
+        for (int n = 0; n < positions; n++) {
+            boards[n] = randomBoard(random, BoardEncoding.STANDARD_SIZE);
+            if (n % 2 == 0) { // both ways in
+                batch.add(boards[n]);
+            } else {
+                batch.add(BatchEvaluator.pack(boards[n], BLACK), BatchEvaluator.pack(boards[n], WHITE));
+            }
+        }
+
+        int[] scores = new int[positions];
+        for (char turn : new char[]{BLACK, WHITE, EMPTY}) {
+            batch.evaluate(turn, scores);
+            for (int n = 0; n < positions; n++) {
+                if (scores[n] != countDiscs(boards[n], turn)) {
+                    System.out.println("evaluate(" + turn + ") differs on batch position " + n);
+                    failures++;
+                }
+            }
+        }
+
+        for (char turn : new char[]{BLACK, WHITE}) {
+            batch.mobility(turn, scores);
+            for (int n = 0; n < positions; n++) {
+                if (scores[n] != countMoves(boards[n], turn)) {
+                    System.out.println("mobility(" + turn + ") differs on batch position " + n);
+                    failures++;
+                }
+            }
+        }
+
+        System.out.println("BatchEvaluator: " + positions + " positions checked");
+        return failures;
+    }
+
+    /**
+     * BitBoard.validMoves against the brute-force isValidMove below on every square, for one board size.
+     */
+    private static int checkBitBoard(Random random, int size, int positions) {
+        BitBoard bitBoard = new BitBoard(size);
+        long[] moves = bitBoard.newBitSet();
+        int failures = 0;
+
+        for (int n = 0; n < positions; n++) {
+            char[][] board = randomBoard(random, size);
+            bitBoard.validMoves(bitBoard.pack(board, BLACK), bitBoard.pack(board, WHITE), moves);
+
+            for (int i = 0; i < size; i++) {
+                for (int j = 0; j < size; j++) {
+                    int sq = i * size + j;
+                    boolean set = (moves[sq >>> 6] >>> (sq & 63) & 1L) != 0;
+                    if (set != isValidMove(board, BLACK, i, j)) {
+                        System.out.println("BitBoard " + size + "x" + size + " differs at " + i + ", " + j);
+                        failures++;
+                    }
+                }
+            }
+        }
+
+        System.out.println("BitBoard " + size + "x" + size + ": " + positions + " positions checked");
+        return failures;
+    }
+
+    /**
+     * Plays random games through Othello.applyMove. Moves are picked with the brute-force rules on boardState, so
+     * applyMove (which checks on the bitboards) has to accept every one of them and turn down a square that isn't
+     * valid. After every move the packed boardState has to equal the engine's bitboards.
+     */
+    private static int checkGames(Random random, int size, int games) {
+        BitBoard bitBoard = new BitBoard(size);
+        int failures = 0;
+        int moves = 0;
+
+        for (int game = 0; game < games; game++) {
+            Othello othello = new Othello(size);
+            char turn = WHITE;
+            int passes = 0;
+
+            while (passes < 2) {
+                List<int[]> valid = new ArrayList<>();
+                List<int[]> invalid = new ArrayList<>();
+                for (int i = 0; i < size; i++) {
+                    for (int j = 0; j < size; j++) {
+                        (isValidMove(othello.boardState, turn, i, j) ? valid : invalid).add(new int[]{i, j});
+                    }
+                }
+
+                if (valid.isEmpty()) {
+                    passes++;
+                    turn = turn == WHITE ? BLACK : WHITE;
+                    continue;
+                }
+                passes = 0;
+
+                int[] bad = invalid.get(random.nextInt(invalid.size()));
+                if (othello.applyMove(bad[0], bad[1], turn)) {
+                    System.out.println(size + "x" + size + " applyMove took invalid move " + bad[0] + ", " + bad[1]);
+                    failures++;
+                }
+
+                int[] move = valid.get(random.nextInt(valid.size()));
+                if (!othello.applyMove(move[0], move[1], turn)) {
+                    System.out.println(size + "x" + size + " applyMove turned down " + move[0] + ", " + move[1]);
+                    failures++;
+                    break; // the board didn't move on, so this game would never finish
+                }
+                moves++;
+
+                if (!Arrays.equals(bitBoard.pack(othello.boardState, BLACK), othello.discs(BLACK))
+                        || !Arrays.equals(bitBoard.pack(othello.boardState, WHITE), othello.discs(WHITE))) {
+                    System.out.println(size + "x" + size + " bitboard out of step with boardState, game " + game);
+                    failures++;
+                    break; // everything after this would just repeat the same failure
+                }
+                turn = turn == WHITE ? BLACK : WHITE;
+            }
+        }
+
+        System.out.println("Othello " + size + "x" + size + ": " + games + " games, " + moves + " moves checked");
+        return failures;
+    }
+
+    /**
+     * A result stored once comes back, with the move in the right place, for all 8 rotations/reflections of the
+     * board and with the colours swapped, from the same instance and from a fresh one reading the file.
+     */
+    private static int checkCacheSymmetries(Random random, int positions) throws IOException {
+        Path file = tempCacheFile();
+        AnalysisCache cache = new AnalysisCache(file, 1);
+        List<char[][]> boards = new ArrayList<>();
+        List<int[]> moves = new ArrayList<>();
+        int failures = 0;
+
+        while (boards.size() < positions) {
+            char[][] board = randomBoard(random, BoardEncoding.STANDARD_SIZE);
+            int[] move = randomEmptySquare(random, board);
+            if (move == null || isSymmetric(board)) { // a symmetric board has more than one right answer
+                continue;
+            }
+            cache.put(board, WHITE, 3, boards.size(), AnalysisCache.EXACT, move[0], move[1]);
+            boards.add(board);
+            moves.add(move);
+        }
+
+        AnalysisCache reloaded = new AnalysisCache(file, 1);
+        for (AnalysisCache instance : new AnalysisCache[]{cache, reloaded}) {
+            for (int n = 0; n < positions; n++) {
+                for (int sym = 0; sym < 8; sym++) {
+                    for (boolean swap : new boolean[]{false, true}) {
+                        char[][] board = transformBoard(boards.get(n), sym, swap);
+                        int[] expected = transformSquare(sym, moves.get(n)[0], moves.get(n)[1]);
+                        AnalysisCache.Entry entry = instance.get(board, swap ? BLACK : WHITE);
+
+                        if (entry == null || entry.row != expected[0] || entry.col != expected[1]
+                                || entry.score != n || entry.depth != 3) {
+                            System.out.println("Cache symmetry " + sym + (swap ? " swapped" : "")
+                                    + " wrong for position " + n + (instance == reloaded ? " after reload" : ""));
+                            failures++;
+                        }
+                    }
+                }
+            }
+        }
+
+        System.out.println("AnalysisCache symmetries and reload: " + positions + " positions checked");
+        return failures;
+    }
+
+    /**
+     * Flipped bytes and a truncated file: no exceptions, and a damaged record is either skipped or still right,
+     * never a wrong move. A zero-filled record must not come back as the empty board.
+     */
+    private static int checkCacheDamage(Random random, int positions) throws IOException {
+        Path file = tempCacheFile();
+        AnalysisCache cache = new AnalysisCache(file, 1);
+        char[][][] boards = new char[positions][][];
+        int[][] moves = new int[positions][];
+        int failures = 0;
+
+        for (int n = 0; n < positions; n++) {
+            do {
+                boards[n] = randomBoard(random, BoardEncoding.STANDARD_SIZE);
+                moves[n] = randomEmptySquare(random, boards[n]);
+            } while (moves[n] == null);
+            cache.put(boards[n], WHITE, 2, n, AnalysisCache.EXACT, moves[n][0], moves[n][1]);
+        }
+
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            for (int flip = 0; flip < positions / 5; flip++) {
+                long offset = AnalysisCache.HEADER_SIZE + random.nextInt(positions * AnalysisCache.RECORD_SIZE);
+                raf.seek(offset);
+                int b = raf.read();
+                raf.seek(offset);
+                raf.write(b ^ (1 << random.nextInt(8)));
+            }
+        }
+        failures += checkDamagedCache(file, boards, moves, positions, "flipped bytes");
+
+        int kept = positions / 2;
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) { // cut part-way into a record
+            raf.setLength(AnalysisCache.HEADER_SIZE + (long) kept * AnalysisCache.RECORD_SIZE + 10);
+        }
+        failures += checkDamagedCache(file, boards, moves, kept, "truncated file");
+
+        System.out.println("AnalysisCache damage: " + positions + " positions checked");
+        return failures;
+    }
+
+    private static int checkDamagedCache(Path file, char[][][] boards, int[][] moves, int intact, String damage) {
+        int failures = 0;
+        int hits = 0;
+
+        try {
+            AnalysisCache cache = new AnalysisCache(file, 1);
+            for (int n = 0; n < boards.length; n++) {
+                AnalysisCache.Entry entry = cache.get(boards[n], WHITE);
+                if (entry == null) {
+                    continue;
+                }
+                hits++;
+                if (n >= intact || entry.row != moves[n][0] || entry.col != moves[n][1]) {
+                    System.out.println("Cache served a wrong move for position " + n + " after " + damage);
+                    failures++;
+                }
+            }
+
+            char[][] empty = new char[BoardEncoding.STANDARD_SIZE][BoardEncoding.STANDARD_SIZE];
+            for (char[] row : empty) {
+                Arrays.fill(row, EMPTY);
+            }
+            if (cache.get(empty, WHITE) != null) {
+                System.out.println("Cache served a zero-filled record after " + damage);
+                failures++;
+            }
+        } catch (RuntimeException e) {
+            System.out.println("Cache threw after " + damage + ": " + e);
+            failures++;
+        }
+
+        if (hits == 0) { // most records are untouched, so losing all of them means damage isn't being contained
+            System.out.println("Cache lost every record after " + damage);
+            failures++;
+        }
+        return failures;
+    }
+
+    /**
+     * Overfills the cache so it has to compact, and checks the deeper entries put in first are all still there.
+     */
+    private static int checkCacheCompaction(Random random, int deep) throws IOException {
+        Path file = tempCacheFile();
+        AnalysisCache cache = new AnalysisCache(file, 1);
+        char[][][] boards = new char[deep][][];
+        int failures = 0;
+
+        for (int n = 0; n < deep; n++) {
+            boards[n] = randomBoard(random, BoardEncoding.STANDARD_SIZE);
+            cache.put(boards[n], WHITE, 9, n, AnalysisCache.EXACT, 0, 0);
+        }
+        for (int n = 0; n < AnalysisCache.MAX_RECORDS + 5000; n++) {
+            cache.put(randomBoard(random, BoardEncoding.STANDARD_SIZE), WHITE, 1, 0, AnalysisCache.EXACT, 0, 0);
+        }
+
+        for (AnalysisCache instance : new AnalysisCache[]{cache, new AnalysisCache(file, 1)}) {
+            for (int n = 0; n < deep; n++) {
+                AnalysisCache.Entry entry = instance.get(boards[n], WHITE);
+                if (entry == null || entry.depth != 9 || entry.score != n) {
+                    System.out.println("Compaction lost deep entry " + n);
+                    failures++;
+                }
+            }
+        }
+
+        System.out.println("AnalysisCache compaction: " + deep + " deep entries checked");
+        return failures;
+    }
+
+    private static Path tempCacheFile() throws IOException {
+        Path file = Files.createTempFile("othello-check", ".cache");
+        file.toFile().deleteOnExit();
+        return file;
+    }
+
+    private static int[] randomEmptySquare(Random random, char[][] board) {
+        List<int[]> empty = new ArrayList<>();
+
+        for (int i = 0; i < board.length; i++) {
+            for (int j = 0; j < board.length; j++) {
+                if (board[i][j] == EMPTY) {
+                    empty.add(new int[]{i, j});
+                }
+            }
+        }
+
+        return empty.isEmpty() ? null : empty.get(random.nextInt(empty.size()));
+    }
+
+    /**
+     * Where a square ends up under one of the 8 symmetries, worked out on coordinates rather than bits:
+     * bit 2 transposes, bit 1 mirrors left/right, bit 0 flips top/bottom, in that order, same as AnalysisCache.
+     */
+    private static int[] transformSquare(int sym, int row, int col) {
+        int last = BoardEncoding.STANDARD_SIZE - 1;
+
+        if ((sym & 4) != 0) {
+            int t = row;
+            row = col;
+            col = t;
+        }
+        if ((sym & 2) != 0) {
+            col = last - col;
+        }
+        if ((sym & 1) != 0) {
+            row = last - row;
+        }
+        return new int[]{row, col};
+    }
+
+    private static char[][] transformBoard(char[][] board, int sym, boolean swapColours) {
+        char[][] out = new char[board.length][board.length];
+
+        for (int i = 0; i < board.length; i++) {
+            for (int j = 0; j < board.length; j++) {
+                int[] to = transformSquare(sym, i, j);
+                char c = board[i][j];
+                if (swapColours) {
+                    c = c == WHITE ? BLACK : c == BLACK ? WHITE : c;
+                }
+                out[to[0]][to[1]] = c;
+            }
+        }
+
+        return out;
+    }
+
+    private static boolean isSymmetric(char[][] board) {
+        for (int sym = 1; sym < 8; sym++) {
+            if (Arrays.deepEquals(board, transformBoard(board, sym, false))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static char[][] randomBoard(Random random, int size) {
+        char[][] board = new char[size][size];
+
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                int r = random.nextInt(3);
+                board[i][j] = r == 0 ? EMPTY : r == 1 ? BLACK : WHITE;
+            }
+        }
+
+        return board;
+    }
+
+    /**
+     * Plain 64-char count, the way GFG.evaluate worked before it counted the engine's bitsets.
+     */
+    static int countDiscs(char[][] board, char turn) {
+        int score = 0;
+
+        for (char[] row : board) {
+            for (char c : row) {
+                if (c == turn) {
+                    score += 1;
+                }
+            }
+        }
+
+        return score;
+    }
+
+    static int countMoves(char[][] board, char turn) {
+        int moves = 0;
+
+        for (int i = 0; i < board.length; i++) {
+            for (int j = 0; j < board.length; j++) {
+                if (isValidMove(board, turn, i, j)) {
+                    moves++;
+                }
+            }
+        }
+
+        return moves;
+    }
+
+    /**
+     * Brute-force rules: the square is empty and, in some direction, a run of at least one opponent disc ends in
+     * one of ours. Written separately from Othello.isValidMove, so it's a second opinion rather than the same code.
+     */
+    static boolean isValidMove(char[][] board, char turn, int row, int col) {
+        char opponent = turn == WHITE ? BLACK : WHITE;
+        int size = board.length;
+
+        if (board[row][col] != EMPTY) {
+            return false;
+        }
+
+        for (int d = 0; d < ROW_DIRS.length; d++) {
+            int r = row + ROW_DIRS[d];
+            int c = col + COL_DIRS[d];
+            int run = 0;
+
+            while (r >= 0 && r < size && c >= 0 && c < size && board[r][c] == opponent) {
+                r += ROW_DIRS[d];
+                c += COL_DIRS[d];
+                run++;
+            }
+            if (run > 0 && r >= 0 && r < size && c >= 0 && c < size && board[r][c] == turn) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
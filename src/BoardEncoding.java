@@ -0,0 +1,19 @@
+/**
+ * How a board is written down, kept in one place so the game, the batch scoring, the bitboards and the cache file
+ * can't drift apart.
+ * <p>
+ * The logical board is a char[][] of BLACK, WHITE and EMPTY. Packed into bits, a square is bit row * size + col,
+ * so on the standard board one long holds one colour. The analysis cache stores packed standard boards, so changing
+ * anything here changes its file format too (bump AnalysisCache.VERSION if you do).
+ */
+final class BoardEncoding {
+
+    static final char BLACK = 'b';
+    static final char WHITE = 'w';
+    static final char EMPTY = 'o';
+    static final int STANDARD_SIZE = 8;
+    static final int STANDARD_SQUARES = STANDARD_SIZE * STANDARD_SIZE;
+
+    private BoardEncoding() {
+    }
+}
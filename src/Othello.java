@@ -2,10 +2,13 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
 
 /**
- * Represents a game of Othello. Plays on a board of 8x8 tiles, white goes first in this case.
+ * Represents a game of Othello. Plays on an NxN board (8x8 unless a size is given), white goes first in this case.
  * Used a minimax algorithm to play the best move at each time. May implement ANN for further analysis,
  * but is quite redundant as the game doesn't have immense complexities, unlike something like Go.
  * <p>
@@ -16,12 +19,36 @@ public class Othello {
     /**
      * Declare a few constants and final objects.
      */
-    private static final char BLACK = 'b';
-    private static final char WHITE = 'w';
-    private static final char EMPTY = 'o';
-    private static final int BOARD_SIZE = 8;
+    private static final char BLACK = BoardEncoding.BLACK;
+    private static final char WHITE = BoardEncoding.WHITE;
+    private static final char EMPTY = BoardEncoding.EMPTY;
+    private static final int DEFAULT_BOARD_SIZE = BoardEncoding.STANDARD_SIZE;
     private final GFG gameAI = new GFG();
 
+    /**
+     * Tiles per side, set once per game. The bitboard does the move generation for the AI at this size.
+     */
+    private final int boardSize;
+    private final BitBoard bitBoard;
+
+    /**
+     * The engine's copy of the board, a bitset per colour (bit row * boardSize + col). Kept in step with boardState
+     * by applyMove and checkDirection (BoardCheck plays games to check that), and it's what the AI searches on,
+     * so nothing gets re-packed per node.
+     */
+    private final long[] whiteDiscs;
+    private final long[] blackDiscs;
+    private final long[] movesLeft; // buffer for hasMovesLeft and applyMove
+
+    /**
+     * Search results kept on disk between runs. Static so that playing again doesn't open the file a second time.
+     * The file can be moved with -Dothello.cache=path.
+     * ENGINE_VERSION has to go up whenever GFG's search or evaluate changes, or old moves keep being served.
+     */
+    private static final int ENGINE_VERSION = 1;
+    private static final AnalysisCache analysisCache = new AnalysisCache(
+            Paths.get(System.getProperty("othello.cache", "othello-analysis.cache")), ENGINE_VERSION);
+
     /**
      * Some string constants that won't be changed, includes the win messages, draw messages, etc.
      * Also the tile size constant.
@@ -37,9 +64,9 @@ public class Othello {
      * The boards: a physical for the white player and a physical for the black player.
      * We also have the logical board that is the same board as the white player.
      */
-    public Tile[][] whiteBoard = new Tile[BOARD_SIZE][BOARD_SIZE]; // physical for white
-    public Tile[][] blackBoard = new Tile[BOARD_SIZE][BOARD_SIZE]; // physical for black
-    public char[][] boardState = new char[BOARD_SIZE][BOARD_SIZE]; // logical
+    public Tile[][] whiteBoard; // physical for white
+    public Tile[][] blackBoard; // physical for black
+    public char[][] boardState; // logical
 
     /**
      * Java Swing components for the actual UI. Two separate frames: white and black.
@@ -59,47 +86,84 @@ public class Othello {
     public char move = WHITE;
 
     /**
-     * Main function, execution entry and terminates here.
+     * Main function, execution entry and terminates here. The board size can be passed as the first argument.
      */
     public static void main(String[] args) {
-        Othello game = new Othello();
+        int boardSize = DEFAULT_BOARD_SIZE;
+        if (args != null && args.length > 0) {
+            boardSize = Integer.parseInt(args[0]);
+        }
+
+        Othello game = new Othello(boardSize);
 
         game.createGameGUI();
         game.printBoardState();
     }
 
+    /**
+     * Standard 8x8 game.
+     */
+    public Othello() {
+        this(DEFAULT_BOARD_SIZE);
+    }
+
     /**
      * The constructor. The logical and physical boards are created and setup.
-     * Then, the starting tiles are also set-up.
+     * Then, the starting tiles are also set-up, in the middle 2x2 of the board.
      * Any Listeners are added to the buttons that need them.
+     *
+     * @param boardSize tiles per side, has to be even and at least 4 so there's a middle for the starting tiles
      */
-    public Othello() {
-        for (int i = 0; i < BOARD_SIZE; i++) {
-            for (int j = 0; j < BOARD_SIZE; j++) {
+    public Othello(int boardSize) {
+        if (boardSize < 4 || boardSize % 2 != 0) {
+            throw new IllegalArgumentException("Board size must be even and at least 4: " + boardSize);
+        }
+        this.boardSize = boardSize;
+        this.bitBoard = new BitBoard(boardSize);
+        this.whiteDiscs = bitBoard.newBitSet();
+        this.blackDiscs = bitBoard.newBitSet();
+        this.movesLeft = bitBoard.newBitSet();
+
+        whiteBoard = new Tile[boardSize][boardSize];
+        blackBoard = new Tile[boardSize][boardSize];
+        boardState = new char[boardSize][boardSize];
+
+        int last = boardSize - 1; // mirrors a coordinate onto the black player's board
+
+        for (int i = 0; i < boardSize; i++) {
+            for (int j = 0; j < boardSize; j++) {
                 boardState[i][j] = EMPTY;
 
                 whiteBoard[i][j] = new Tile(TILE_SIZE, TILE_SIZE, Tile.TileState.EMPTY);
                 whiteBoard[i][j].addActionListener(new TileListener());
 
-                blackBoard[7 - i][7 - j] = new Tile(TILE_SIZE, TILE_SIZE, Tile.TileState.EMPTY);
-                blackBoard[7 - i][7 - j].addActionListener(new TileListener());
+                blackBoard[last - i][last - j] = new Tile(TILE_SIZE, TILE_SIZE, Tile.TileState.EMPTY);
+                blackBoard[last - i][last - j].addActionListener(new TileListener());
             }
         }
-        boardState[3][3] = WHITE;
-        whiteBoard[3][3].setState(Tile.TileState.WHITE);
-        blackBoard[4][4].setState(Tile.TileState.WHITE);
+        int lo = boardSize / 2 - 1;
+        int hi = boardSize / 2;
 
-        boardState[3][4] = BLACK;
-        whiteBoard[3][4].setState(Tile.TileState.BLACK);
-        blackBoard[4][3].setState(Tile.TileState.BLACK);
+        boardState[lo][lo] = WHITE;
+        whiteBoard[lo][lo].setState(Tile.TileState.WHITE);
+        blackBoard[hi][hi].setState(Tile.TileState.WHITE);
 
-        boardState[4][3] = BLACK;
-        whiteBoard[4][3].setState(Tile.TileState.BLACK);
-        blackBoard[3][4].setState(Tile.TileState.BLACK);
+        boardState[lo][hi] = BLACK;
+        whiteBoard[lo][hi].setState(Tile.TileState.BLACK);
+        blackBoard[hi][lo].setState(Tile.TileState.BLACK);
 
-        boardState[4][4] = WHITE;
-        whiteBoard[4][4].setState(Tile.TileState.WHITE);
-        blackBoard[3][3].setState(Tile.TileState.WHITE);
+        boardState[hi][lo] = BLACK;
+        whiteBoard[hi][lo].setState(Tile.TileState.BLACK);
+        blackBoard[lo][hi].setState(Tile.TileState.BLACK);
+
+        boardState[hi][hi] = WHITE;
+        whiteBoard[hi][hi].setState(Tile.TileState.WHITE);
+        blackBoard[lo][lo].setState(Tile.TileState.WHITE);
+
+        setDisc(lo, lo, WHITE);
+        setDisc(lo, hi, BLACK);
+        setDisc(hi, lo, BLACK);
+        setDisc(hi, hi, WHITE);
 
         autoPlayWhiteButton.addActionListener(new GreedyMoveListener());
         autoPlayBlackButton.addActionListener(new GreedyMoveListener());
@@ -131,11 +195,11 @@ public class Othello {
         whitePlayerFrame.add(whiteFrameTopPanel, BorderLayout.PAGE_START);
         blackPlayerFrame.add(blackFrameTopPanel, BorderLayout.PAGE_START);
 
-        JPanel blackFrameMainPanel = new JPanel(new GridLayout(BOARD_SIZE, BOARD_SIZE)); // white game board
-        JPanel whiteFrameMainPanel = new JPanel(new GridLayout(BOARD_SIZE, BOARD_SIZE)); // black game board
+        JPanel blackFrameMainPanel = new JPanel(new GridLayout(boardSize, boardSize)); // white game board
+        JPanel whiteFrameMainPanel = new JPanel(new GridLayout(boardSize, boardSize)); // black game board
 
-        for (int i = 0; i < BOARD_SIZE; i++) { // add tiles to panels
-            for (int j = 0; j < BOARD_SIZE; j++) {
+        for (int i = 0; i < boardSize; i++) { // add tiles to panels
+            for (int j = 0; j < boardSize; j++) {
                 whiteFrameMainPanel.add(whiteBoard[i][j]);
                 blackFrameMainPanel.add(blackBoard[i][j]);
             }
@@ -173,19 +237,39 @@ public class Othello {
      * If I were to work on this project more, I would definitely rework the logic to make the code run more efficiently.
      */
     public void makeMove(int row, int col, char turn) {
-        if (!isValidMove(turn, row, col)) {
+        if (!applyMove(row, col, turn)) {
             System.out.println("Invalid move!");
             return;
         }
 
+        setTurnMessage();
+        printBoardState();
+        whitePlayerFrame.repaint();
+        blackPlayerFrame.repaint();
+    }
+
+    /**
+     * The rules half of makeMove, without the frames: checks the move on the bitboards, then places the disc and
+     * flips, on boardState, the tiles and the bitboards together. Package-private so BoardCheck can play games
+     * through it without a GUI.
+     *
+     * @return false if the move isn't valid, in which case nothing is changed
+     */
+    boolean applyMove(int row, int col, char turn) {
+        bitBoard.validMoves(discs(turn), discs(turn == WHITE ? BLACK : WHITE), movesLeft);
+        if (!BitBoard.get(movesLeft, row * boardSize + col)) {
+            return false;
+        }
+
         // move taken
         boardState[row][col] = turn;
+        setDisc(row, col, turn);
         if (turn == WHITE) {
             whiteBoard[row][col].setState(Tile.TileState.WHITE);
-            blackBoard[BOARD_SIZE - 1 - row][BOARD_SIZE - 1 - col].setState(Tile.TileState.WHITE);
+            blackBoard[boardSize - 1 - row][boardSize - 1 - col].setState(Tile.TileState.WHITE);
         } else if (turn == BLACK) {
             whiteBoard[row][col].setState(Tile.TileState.BLACK);
-            blackBoard[BOARD_SIZE - 1 - row][BOARD_SIZE - 1 - col].setState(Tile.TileState.BLACK);
+            blackBoard[boardSize - 1 - row][boardSize - 1 - col].setState(Tile.TileState.BLACK);
         }
 
         // above below
@@ -202,10 +286,7 @@ public class Othello {
         checkDirection(row, col, turn, -1, 1);
         checkDirection(row, col, turn, -1, -1);
 
-        setTurnMessage();
-        printBoardState();
-        whitePlayerFrame.repaint();
-        blackPlayerFrame.repaint();
+        return true;
     }
 
     /**
@@ -214,11 +295,11 @@ public class Othello {
     public void aiMove(char turn) {
         long startTime = System.nanoTime(); // timer
 
-        int[] bestMove = gameAI.findBestMove(boardState, turn);
+        int[] bestMove = gameAI.findBestMove(turn);
 
         if (bestMove[0] == -1 || bestMove[1] == -1) { // GFG failed, make random move instead
-            for (int i = 0; i < BOARD_SIZE; i++) {
-                for (int j = 0; j < BOARD_SIZE; j++) {
+            for (int i = 0; i < boardSize; i++) {
+                for (int j = 0; j < boardSize; j++) {
                     makeMove(i, j, WHITE);
                     System.out.println("Random move made by white AI: " + i + " " + j);
                 }
@@ -272,7 +353,7 @@ public class Othello {
         int currentRow = row + rowDir;
         int currentCol = col + colDir;
 
-        if (currentRow > 7 || currentRow < 0 || currentCol > 7 || currentCol < 0) {
+        if (currentRow >= boardSize || currentRow < 0 || currentCol >= boardSize || currentCol < 0) {
             return;
         }
 
@@ -280,12 +361,13 @@ public class Othello {
             if (boardState[currentRow][currentCol] == colour) {
                 while (!(row == currentRow && col == currentCol)) {
                     boardState[currentRow][currentCol] = colour;
+                    setDisc(currentRow, currentCol, colour);
                     if (colour == WHITE) {
                         whiteBoard[currentRow][currentCol].setState(Tile.TileState.WHITE);
-                        blackBoard[7 - currentRow][7 - currentCol].setState(Tile.TileState.WHITE);
+                        blackBoard[boardSize - 1 - currentRow][boardSize - 1 - currentCol].setState(Tile.TileState.WHITE);
                     } else if (colour == BLACK) {
                         whiteBoard[currentRow][currentCol].setState(Tile.TileState.BLACK);
-                        blackBoard[7 - currentRow][7 - currentCol].setState(Tile.TileState.BLACK);
+                        blackBoard[boardSize - 1 - currentRow][boardSize - 1 - currentCol].setState(Tile.TileState.BLACK);
                     }
                     currentRow -= rowDir;
                     currentCol -= colDir;
@@ -296,37 +378,44 @@ public class Othello {
                 currentCol += colDir;
             }
 
-            if (currentRow < 0 || currentRow > 7 || currentCol < 0 || currentCol > 7) {
+            if (currentRow < 0 || currentRow >= boardSize || currentCol < 0 || currentCol >= boardSize) {
                 break;
             }
         }
     }
 
     /**
-     * As described, counts tiles to see if it matches 64, if so return true, else false;
+     * Puts a disc of that colour on the engine's bitboards, taking it off the other colour's if it was flipped.
+     */
+    private void setDisc(int row, int col, char colour) {
+        int square = row * boardSize + col;
+
+        BitBoard.set(discs(colour), square);
+        BitBoard.clear(discs(colour == WHITE ? BLACK : WHITE), square);
+    }
+
+    long[] discs(char colour) { // package-private for BoardCheck
+        return colour == WHITE ? whiteDiscs : blackDiscs;
+    }
+
+    /**
+     * As described, counts tiles to see if it matches the number of squares, if so return true, else false;
+     * Counted on the bitboards, so it also sees discs the AI has placed while searching.
      *
      * @return true if tiles are filled with pieces, else false.
      */
     private boolean isGameEnded() { // different from actually having any moves left, as the game may be finished with tiles still free
-        int count = 0;
-
-        for (int i = 0; i < BOARD_SIZE; i++) {
-            for (int j = 0; j < BOARD_SIZE; j++) {
-                if (boardState[i][j] == WHITE || boardState[i][j] == BLACK) {
-                    count++;
-                }
-            }
-        }
+        int count = bitBoard.count(whiteDiscs) + bitBoard.count(blackDiscs);
 
-        return count == 64;
+        return count == boardSize * boardSize;
     }
 
     /**
      * Mainly for debugging and gameplay analytics, to see if pieces were placed in the correct places.
      */
     private void printBoardState() {
-        for (int i = 0; i < BOARD_SIZE; i++) {
-            for (int j = 0; j < BOARD_SIZE; j++) {
+        for (int i = 0; i < boardSize; i++) {
+            for (int j = 0; j < boardSize; j++) {
                 System.out.print(boardState[i][j] + " ");
             }
             System.out.println();
@@ -334,146 +423,17 @@ public class Othello {
         System.out.println();
     }
 
-    /**
-     * Checks if a move is valid. In short, the algorithm I used was:
-     * - See if the square selected is empty; if so continue, else return.
-     * - Check each cardinal direction, whilst the piece is an opponents and within board range, keep traversing.
-     * - If the board[row][col] has the current turn's piece, then return true, as it is a valid move.
-     *
-     * @param turn whose turn
-     * @param row  row value
-     * @param col  column value
-     * @return true if there is a valid move else false
-     */
-    private boolean isValidMove(char turn, int row, int col) {
-        char opponent = WHITE;
-        int tempRow, tempCol;
-        boolean ret = false;
-
-        if (turn == WHITE) {
-            opponent = BLACK;
-        }
-
-        if (boardState[row][col] == EMPTY) {
-            if (row + 1 < BOARD_SIZE && col + 1 < BOARD_SIZE && boardState[row + 1][col + 1] == opponent) { // south-east
-                tempRow = row;
-                tempCol = col;
-
-                do {
-                    tempRow++;
-                    tempCol++;
-                } while (tempRow < BOARD_SIZE && tempCol < BOARD_SIZE && boardState[tempRow][tempCol] == opponent);
-                if (tempRow > 7 || tempCol > 7) {
-                    ret = false;
-                } else if (boardState[tempRow][tempCol] == turn) {
-                    return true;
-                }
-            }
-            if (row + 1 < BOARD_SIZE && boardState[row + 1][col] == opponent) { // south
-                tempRow = row;
-
-                do {
-                    tempRow++;
-                } while (tempRow < BOARD_SIZE && boardState[tempRow][col] == opponent);
-                if (tempRow > 7) {
-                    ret = false;
-                } else if (boardState[tempRow][col] == turn) {
-                    return true;
-                }
-            }
-            if (col + 1 < BOARD_SIZE && boardState[row][col + 1] == opponent) { // east
-                tempCol = col;
-
-                do {
-                    tempCol++;
-                } while (tempCol < BOARD_SIZE && boardState[row][tempCol] == opponent);
-                if (tempCol > 7) {
-                    ret = false;
-                } else if (boardState[row][tempCol] == turn) {
-                    return true;
-                }
-            }
-            if (col - 1 > -1 && boardState[row][col - 1] == opponent) { // west
-                tempCol = col;
-
-                do {
-                    tempCol--;
-                } while (tempCol - 1 > -1 && boardState[row][tempCol] == opponent);
-                if (tempCol < 0) {
-                    ret = false;
-                } else if (boardState[row][tempCol] == turn) {
-                    return true;
-                }
-            }
-            if (row - 1 > -1 && col - 1 > -1 && boardState[row - 1][col - 1] == opponent) { // north-west
-                tempRow = row;
-                tempCol = col;
-
-                do {
-                    tempRow--;
-                    tempCol--;
-                } while (tempRow - 1 > -1 && tempCol - 1 > -1 && boardState[tempRow][tempCol] == opponent);
-                if (tempRow < 0 || tempCol < 0) {
-                    ret = false;
-                } else if (boardState[tempRow][tempCol] == turn) {
-                    return true;
-                }
-            }
-            if (row - 1 > -1 && boardState[row - 1][col] == opponent) { // north
-                tempRow = row;
-
-                do {
-                    tempRow--;
-                } while (tempRow - 1 > -1 && boardState[tempRow][col] == opponent);
-                if (tempRow < 0) {
-                    ret = false;
-                } else if (boardState[tempRow][col] == turn) {
-                    return true;
-                }
-            }
-            if (row - 1 > -1 && col + 1 < BOARD_SIZE && boardState[row - 1][col + 1] == opponent) { // north-east
-                tempRow = row;
-                tempCol = col;
-
-                do {
-                    tempRow--;
-                    tempCol++;
-                } while (tempRow - 1 > -1 && tempCol < BOARD_SIZE && boardState[tempRow][tempCol] == opponent);
-                if (tempRow < 0 || tempCol > 7) {
-                    ret = false;
-                } else if (boardState[tempRow][tempCol] == turn) {
-                    return true;
-                }
-            }
-            if (row + 1 < BOARD_SIZE && col - 1 > -1 && boardState[row + 1][col - 1] == opponent) { // south-west
-                tempRow = row;
-                tempCol = col;
-
-                do {
-                    tempRow++;
-                    tempCol--;
-                } while (tempRow < BOARD_SIZE && tempCol - 1 > -1 && boardState[tempRow][tempCol] == opponent);
-                if (tempRow > 7 || tempCol < 0) {
-                    ret = false;
-                } else if (boardState[tempRow][tempCol] == turn) {
-                    return true;
-                }
-            }
-        }
-        return ret;
-    }
-
     /**
      * Checks every tile position to see if a tile still has a suitable move.
+     * Done on the bitboard, so it's one pass over the board rather than a check on each tile.
      */
     private boolean hasMovesLeft(char turn) {
-        for (int i = 0; i < BOARD_SIZE; i++) {
-            for (int j = 0; j < BOARD_SIZE; j++) {
-                if (isValidMove(turn, i, j)) {
-                    System.out.println("valid move at: " + i + ", " + j);
-                    return true;
-                }
-            }
+        bitBoard.validMoves(discs(turn), discs(turn == WHITE ? BLACK : WHITE), movesLeft);
+        int square = bitBoard.nextSetBit(movesLeft, 0);
+
+        if (square >= 0) {
+            System.out.println("valid move at: " + square / boardSize + ", " + square % boardSize);
+            return true;
         }
 
         return false;
@@ -484,10 +444,10 @@ public class Othello {
      */
     public void endGame() {
         String gameEndMsg = "";
-        int whiteScore = gameAI.evaluate(boardState, WHITE);
-        int blackScore = gameAI.evaluate(boardState, BLACK);
+        int whiteScore = gameAI.evaluate(WHITE);
+        int blackScore = gameAI.evaluate(BLACK);
 
-        if (whiteScore + blackScore != 64) {
+        if (whiteScore + blackScore != boardSize * boardSize) {
             gameEndMsg += NO_MORE_TURNS_LEFT;
         }
 
@@ -508,7 +468,7 @@ public class Othello {
         } else {
             whitePlayerFrame.dispose();
             blackPlayerFrame.dispose();
-            main(null);
+            main(new String[]{String.valueOf(boardSize)});
         }
     }
 
@@ -525,14 +485,14 @@ public class Othello {
                 whitePlayerFrame.repaint();
                 blackPlayerFrame.repaint();
             } else {
-                for (int i = 0; i < BOARD_SIZE; i++) {
-                    for (int j = 0; j < BOARD_SIZE; j++) {
+                for (int i = 0; i < boardSize; i++) {
+                    for (int j = 0; j < boardSize; j++) {
                         if (move == WHITE && whiteBoard[i][j] == e.getSource()) {
                             System.out.println("Move made by white: " + i + " " + j);
                             makeMove(i, j, WHITE);
 
                             break;
-                        } else if (move == BLACK && blackBoard[7 - i][7 - j] == e.getSource()) {
+                        } else if (move == BLACK && blackBoard[boardSize - 1 - i][boardSize - 1 - j] == e.getSource()) {
                             System.out.println("Move made by black: " + i + " " + j);
                             makeMove(i, j, BLACK);
 
@@ -583,29 +543,30 @@ public class Othello {
      */
     private class GFG {
 
-        public int evaluate(char[][] board, char turn) {
-            int score = 0;
+        /**
+         * Depth recorded against cached results: the root move plus one reply.
+         */
+        private static final int SEARCH_DEPTH = 1;
 
-            for (int i = 0; i < BOARD_SIZE; i++) {
-                for (int j = 0; j < BOARD_SIZE; j++) {
-                    if (board[i][j] == turn) {
-                        score += 1;
-                    }
-                }
-            }
+        /**
+         * The search places discs straight onto whiteDiscs/blackDiscs and takes them off again on the way back up.
+         * Each ply gets its own moves buffer, made the first time that depth is reached and reused after that.
+         */
+        private final List<long[]> moveBuffers = new ArrayList<>();
 
-            return score;
+        public int evaluate(char turn) {
+            return bitBoard.count(discs(turn));
         }
 
-        public int minimax(char[][] board, int depth, boolean isMax, char turn) {
+        public int minimax(int depth, boolean isMax, char turn) {
             char opponent = WHITE;
             if (turn == WHITE) {
                 opponent = BLACK;
             }
 
-            int score = evaluate(board, turn);
+            int score = evaluate(turn);
 
-            if (score == 64) {
+            if (score == boardSize * boardSize) {
                 return score;
             }
 
@@ -617,57 +578,75 @@ public class Othello {
                 return 0;
             }
 
+            long[] own = discs(turn);
+            long[] opp = discs(opponent);
+            long[] moves = movesAt(depth + 1);
+            bitBoard.validMoves(own, opp, moves);
+
             if (isMax) {
                 int best = -1000;
 
-                for (int i = 0; i < BOARD_SIZE; i++) {
-                    for (int j = 0; j < BOARD_SIZE; j++) {
-                        if (isValidMove(turn, i, j)) {
-                            board[i][j] = turn;
-                            best = Math.max(best, minimax(board, depth + 1, !isMax, turn));
-                            board[i][j] = EMPTY;
-                        }
-                    }
+                for (int sq = bitBoard.nextSetBit(moves, 0); sq >= 0; sq = bitBoard.nextSetBit(moves, sq + 1)) {
+                    BitBoard.set(own, sq);
+                    best = Math.max(best, minimax(depth + 1, !isMax, turn));
+                    BitBoard.clear(own, sq);
                 }
                 return best;
             } else {
                 int best = 1000;
 
-                for (int i = 0; i < BOARD_SIZE; i++) {
-                    for (int j = 0; j < BOARD_SIZE; j++) {
-                        if (isValidMove(turn, i, j)) {
-                            board[i][j] = opponent;
-                            best = Math.min(best, minimax(board, depth + 1, !isMax, turn));
-                            board[i][j] = EMPTY;
-                        }
-                    }
+                for (int sq = bitBoard.nextSetBit(moves, 0); sq >= 0; sq = bitBoard.nextSetBit(moves, sq + 1)) {
+                    BitBoard.set(opp, sq);
+                    best = Math.min(best, minimax(depth + 1, !isMax, turn));
+                    BitBoard.clear(opp, sq);
                 }
                 return best;
             }
         }
 
-        private int[] findBestMove(char[][] board, char turn) {
+        private int[] findBestMove(char turn) {
+            boolean cacheable = boardSize == DEFAULT_BOARD_SIZE; // the cache file only holds 8x8 positions
+
+            if (cacheable) {
+                AnalysisCache.Entry cached = analysisCache.get(boardState, turn);
+                if (cached != null && cached.bound == AnalysisCache.EXACT
+                        && cached.depth >= SEARCH_DEPTH) { // searched this one before
+                    return new int[]{cached.row, cached.col};
+                }
+            }
+
             int bestVal = -1000;
             int[] bestMove = {-1, -1};
+            long[] own = discs(turn);
+            long[] moves = movesAt(0);
+            bitBoard.validMoves(own, discs(turn == WHITE ? BLACK : WHITE), moves);
 
-            for (int i = 0; i < BOARD_SIZE; i++) {
-                for (int j = 0; j < BOARD_SIZE; j++) {
-                    if (isValidMove(turn, i, j)) {
-                        board[i][j] = turn;
+            for (int sq = bitBoard.nextSetBit(moves, 0); sq >= 0; sq = bitBoard.nextSetBit(moves, sq + 1)) {
+                BitBoard.set(own, sq);
 
-                        int moveVal = minimax(board, 0, false, turn);
+                int moveVal = minimax(0, false, turn);
 
-                        board[i][j] = EMPTY;
-                        if (moveVal > bestVal) {
-                            bestMove[0] = i;
-                            bestMove[1] = j;
-                            bestVal = moveVal;
-                        }
-                    }
+                BitBoard.clear(own, sq);
+                if (moveVal > bestVal) {
+                    bestMove[0] = sq / boardSize;
+                    bestMove[1] = sq % boardSize;
+                    bestVal = moveVal;
                 }
             }
 
+            if (cacheable && bestMove[0] != -1) {
+                analysisCache.put(boardState, turn, SEARCH_DEPTH, bestVal, AnalysisCache.EXACT, bestMove[0], bestMove[1]);
+            }
+
             return bestMove;
         }
+
+        private long[] movesAt(int ply) {
+            while (moveBuffers.size() <= ply) {
+                moveBuffers.add(bitBoard.newBitSet());
+            }
+
+            return moveBuffers.get(ply);
+        }
     }
-}
\ No newline at end of file
+}